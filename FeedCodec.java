@@ -0,0 +1,318 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary codec for posts and feed pages.
+ *
+ * Page layout:
+ *   version byte
+ *   varint author count, then each author id as a length-prefixed UTF-8 string
+ *   varint post count, then per post:
+ *     varint post id  - (n << 1) for ids of the form "POST_n", otherwise (utf8Length << 1 | 1) followed by the bytes
+ *     varint author index into the dictionary
+ *     zigzag varint timestamp in epoch microseconds (UTC), as a delta from the previous post
+ *     length-prefixed UTF-8 content
+ *
+ * Encoding writes straight into the caller's ByteBuffer and reuses the codec's
+ * dictionary tables, so steady-state encoding does not allocate. A codec instance
+ * is not thread-safe; keep one per thread. Timestamps are truncated to microseconds.
+ * Decoding rejects malformed or truncated input with IllegalArgumentException.
+ */
+public class FeedCodec {
+    private static final byte VERSION = 1;
+    private static final String POST_ID_PREFIX = "POST_";
+
+    // Open-addressed author dictionary, reused across encode calls
+    private String[] dictKeys;
+    private int[] dictValues;
+    private String[] dictOrder;
+    private int[] dictSlots; // table slot of each dictOrder entry, so clearing touches only used slots
+    private int dictSize;
+
+    private byte[] scratch;
+
+    public FeedCodec() {
+        this.dictKeys = new String[64];
+        this.dictValues = new int[64];
+        this.dictOrder = new String[32];
+        this.dictSlots = new int[32];
+        this.dictSize = 0;
+        this.scratch = new byte[256];
+    }
+
+    // A one-post page with a one-author dictionary, written without touching the dictionary tables
+    public void encodePost(Post post, ByteBuffer out) {
+        out.put(VERSION);
+        writeVarint(out, 1);
+        writeString(out, post.getUserId());
+        writeVarint(out, 1);
+        writePost(out, post, 0, 0);
+    }
+
+    public Post decodePost(ByteBuffer in) {
+        List<Post> posts = decodePage(in);
+        if (posts.size() != 1) {
+            throw new IllegalArgumentException("Expected a single post but found " + posts.size());
+        }
+        return posts.get(0);
+    }
+
+    // Throws BufferOverflowException if the page does not fit in out
+    public void encodePage(List<Post> posts, ByteBuffer out) {
+        clearDictionary();
+        for (int i = 0; i < posts.size(); i++) {
+            addAuthor(posts.get(i).getUserId());
+        }
+
+        out.put(VERSION);
+        writeVarint(out, dictSize);
+        for (int i = 0; i < dictSize; i++) {
+            writeString(out, dictOrder[i]);
+        }
+
+        writeVarint(out, posts.size());
+        long previousMicros = 0;
+        for (int i = 0; i < posts.size(); i++) {
+            Post post = posts.get(i);
+            previousMicros = writePost(out, post, lookupAuthor(post.getUserId()), previousMicros);
+        }
+    }
+
+    public List<Post> decodePage(ByteBuffer in) {
+        if (!in.hasRemaining()) {
+            throw new IllegalArgumentException("Truncated feed page");
+        }
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported feed codec version: " + version);
+        }
+
+        // Every author and every post takes at least one byte, which bounds both counts
+        int authorCount = readLength(in, "Author count");
+        String[] authors = new String[authorCount];
+        for (int i = 0; i < authorCount; i++) {
+            authors[i] = readString(in, readLength(in, "Author length"));
+        }
+
+        int postCount = readLength(in, "Post count");
+        List<Post> posts = new ArrayList<>(postCount);
+        long previousMicros = 0;
+        for (int i = 0; i < postCount; i++) {
+            long idTag = readVarint(in);
+            String postId;
+            if ((idTag & 1) == 0) {
+                postId = POST_ID_PREFIX + (idTag >>> 1);
+            } else {
+                long length = idTag >>> 1;
+                if (length > in.remaining()) {
+                    throw new IllegalArgumentException("Post id length out of range: " + length);
+                }
+                postId = readString(in, (int) length);
+            }
+            long authorIndex = readVarint(in);
+            if (authorIndex < 0 || authorIndex >= authorCount) {
+                throw new IllegalArgumentException("Author index out of range: " + authorIndex);
+            }
+            long micros = previousMicros + unzigzag(readVarint(in));
+            previousMicros = micros;
+            String content = readString(in, readLength(in, "Content length"));
+            posts.add(PostFactory.createPost(postId, authors[(int) authorIndex], content, fromEpochMicros(micros)));
+        }
+        return posts;
+    }
+
+    // Returns the timestamp written, for the next post's delta
+    private static long writePost(ByteBuffer out, Post post, int authorIndex, long previousMicros) {
+        writePostId(out, post.getPostId());
+        writeVarint(out, authorIndex);
+        long micros = toEpochMicros(post.getTimestamp());
+        writeVarint(out, zigzag(micros - previousMicros));
+        writeString(out, post.getContent());
+        return micros;
+    }
+
+    private static void writePostId(ByteBuffer out, String postId) {
+        long number = PostFactory.getPostNumber(postId);
+        if (number >= 0) {
+            writeVarint(out, number << 1);
+        } else {
+            writeVarint(out, ((long) utf8Length(postId) << 1) | 1);
+            writeUtf8(out, postId);
+        }
+    }
+
+    private void clearDictionary() {
+        for (int i = 0; i < dictSize; i++) {
+            dictKeys[dictSlots[i]] = null;
+            dictOrder[i] = null;
+        }
+        dictSize = 0;
+    }
+
+    private void addAuthor(String author) {
+        if (lookupAuthor(author) >= 0) {
+            return;
+        }
+        if ((dictSize + 1) * 2 > dictKeys.length) {
+            growDictionary();
+        }
+        int slot = slotFor(dictKeys, author);
+        dictKeys[slot] = author;
+        dictValues[slot] = dictSize;
+        if (dictSize == dictOrder.length) {
+            dictOrder = Arrays.copyOf(dictOrder, dictSize * 2);
+            dictSlots = Arrays.copyOf(dictSlots, dictSize * 2);
+        }
+        dictSlots[dictSize] = slot;
+        dictOrder[dictSize++] = author;
+    }
+
+    private int lookupAuthor(String author) {
+        int slot = slotFor(dictKeys, author);
+        return dictKeys[slot] == null ? -1 : dictValues[slot];
+    }
+
+    private void growDictionary() {
+        dictKeys = new String[dictKeys.length * 2];
+        dictValues = new int[dictKeys.length];
+        for (int i = 0; i < dictSize; i++) {
+            int slot = slotFor(dictKeys, dictOrder[i]);
+            dictKeys[slot] = dictOrder[i];
+            dictValues[slot] = i;
+            dictSlots[i] = slot;
+        }
+    }
+
+    // Linear probing; table length is a power of two and never more than half full
+    private static int slotFor(String[] keys, String key) {
+        int mask = keys.length - 1;
+        int slot = (key.hashCode() * 0x9E3779B9) >>> 16 & mask;
+        while (keys[slot] != null && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static void writeString(ByteBuffer out, String value) {
+        writeVarint(out, utf8Length(value));
+        writeUtf8(out, value);
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    // Same output as String.getBytes(UTF_8), including '?' for unpaired surrogates
+    private static void writeUtf8(ByteBuffer out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private String readString(ByteBuffer in, int length) {
+        if (in.hasArray()) {
+            int start = in.arrayOffset() + in.position();
+            in.position(in.position() + length);
+            return new String(in.array(), start, length, StandardCharsets.UTF_8);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        in.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    // A count or byte length, which can never exceed the bytes left in the page
+    private static int readLength(ByteBuffer in, String what) {
+        long value = readVarint(in);
+        if (value < 0 || value > in.remaining()) {
+            throw new IllegalArgumentException(what + " out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 63) {
+                throw new IllegalArgumentException("Malformed varint");
+            }
+            if (!in.hasRemaining()) {
+                throw new IllegalArgumentException("Truncated feed page");
+            }
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long toEpochMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromEpochMicros(long micros) {
+        long seconds = Math.floorDiv(micros, 1_000_000L);
+        int nanos = (int) Math.floorMod(micros, 1_000_000L) * 1_000;
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+}
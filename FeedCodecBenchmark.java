@@ -0,0 +1,110 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the binary FeedCodec against hand-built JSON for feed pages.
+ * Usage: java FeedCodecBenchmark [pages] [postsPerPage]
+ */
+public class FeedCodecBenchmark {
+    private static final int AUTHORS = 20;
+    private static final int WARMUP_ROUNDS = 3;
+    
+    public static void main(String[] args) {
+        int pageCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int pageSize = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        List<List<Post>> pages = buildPages(pageCount, pageSize);
+        
+        FeedCodec codec = new FeedCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        
+        // Encoded once up front so the decode loop times decodePage alone
+        byte[][] encodedPages = new byte[pageCount][];
+        long binaryBytes = 0;
+        long jsonBytes = 0;
+        for (int p = 0; p < pageCount; p++) {
+            List<Post> page = pages.get(p);
+            buffer.clear();
+            codec.encodePage(page, buffer);
+            encodedPages[p] = Arrays.copyOf(buffer.array(), buffer.position());
+            binaryBytes += buffer.position();
+            jsonBytes += toJson(page).getBytes(StandardCharsets.UTF_8).length;
+        }
+        
+        long sink = 0;
+        long binaryEncodeNanos = 0;
+        long binaryDecodeNanos = 0;
+        long jsonEncodeNanos = 0;
+        for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (List<Post> page : pages) {
+                buffer.clear();
+                codec.encodePage(page, buffer);
+                sink += buffer.position();
+            }
+            binaryEncodeNanos = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            for (byte[] encoded : encodedPages) {
+                sink += codec.decodePage(ByteBuffer.wrap(encoded)).size();
+            }
+            binaryDecodeNanos = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            for (List<Post> page : pages) {
+                sink += toJson(page).getBytes(StandardCharsets.UTF_8).length;
+            }
+            jsonEncodeNanos = System.nanoTime() - start;
+        }
+        
+        System.out.println("=== Feed Codec Benchmark (" + pageCount + " pages x " + pageSize + " posts) ===");
+        System.out.printf("Payload size   binary: %8.1f bytes/page   json: %8.1f bytes/page   (%.1f%% of json)%n",
+                (double) binaryBytes / pageCount, (double) jsonBytes / pageCount, 100.0 * binaryBytes / jsonBytes);
+        System.out.printf("Encode         binary: %8.0f pages/ms     json: %8.0f pages/ms%n",
+                pagesPerMilli(pageCount, binaryEncodeNanos), pagesPerMilli(pageCount, jsonEncodeNanos));
+        System.out.printf("Decode         binary: %8.0f pages/ms%n", pagesPerMilli(pageCount, binaryDecodeNanos));
+        System.out.println("(checksum " + sink + ")");
+    }
+    
+    private static List<List<Post>> buildPages(int pageCount, int pageSize) {
+        List<List<Post>> pages = new ArrayList<>(pageCount);
+        LocalDateTime now = LocalDateTime.now();
+        int postNumber = 1;
+        for (int p = 0; p < pageCount; p++) {
+            List<Post> page = new ArrayList<>(pageSize);
+            for (int i = 0; i < pageSize; i++) {
+                String author = "user" + ((p * 7 + i * 3) % AUTHORS);
+                page.add(PostFactory.createPost("POST_" + postNumber, author,
+                        "Post number " + postNumber + " about concurrency and feeds",
+                        now.minusSeconds(postNumber)));
+                postNumber++;
+            }
+            pages.add(page);
+        }
+        return pages;
+    }
+    
+    // The hand-built JSON the gateway produces today
+    private static String toJson(List<Post> page) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < page.size(); i++) {
+            Post post = page.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"postId\":\"").append(post.getPostId())
+                .append("\",\"userId\":\"").append(post.getUserId())
+                .append("\",\"content\":\"").append(post.getContent())
+                .append("\",\"timestamp\":\"").append(post.getTimestamp())
+                .append("\"}");
+        }
+        return json.append(']').toString();
+    }
+    
+    private static double pagesPerMilli(int pages, long nanos) {
+        return pages / Math.max(nanos / 1_000_000.0, 0.001);
+    }
+}
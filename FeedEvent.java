@@ -0,0 +1,64 @@
+/**
+ * Immutable feed event stored in a user's shared feed buffer
+ */
+public class FeedEvent {
+    public enum Type {
+        NEW_POST,
+        POST_DELETED,
+        BACKFILL_POST,    // Older post of a newly followed author
+        AUTHOR_UNFOLLOWED // Client should drop the author's posts from its feed
+    }
+    
+    private final Type type;
+    private final String postId;
+    private final String authorId;
+    private final Post post; // null unless NEW_POST or BACKFILL_POST
+    
+    private FeedEvent(Type type, String postId, String authorId, Post post) {
+        this.type = type;
+        this.postId = postId;
+        this.authorId = authorId;
+        this.post = post;
+    }
+    
+    public static FeedEvent newPost(Post post) {
+        return new FeedEvent(Type.NEW_POST, post.getPostId(), post.getUserId(), post);
+    }
+    
+    public static FeedEvent postDeleted(String postId, String authorId) {
+        return new FeedEvent(Type.POST_DELETED, postId, authorId, null);
+    }
+    
+    public static FeedEvent backfillPost(Post post) {
+        return new FeedEvent(Type.BACKFILL_POST, post.getPostId(), post.getUserId(), post);
+    }
+    
+    public static FeedEvent authorUnfollowed(String authorId) {
+        return new FeedEvent(Type.AUTHOR_UNFOLLOWED, null, authorId, null);
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public String getPostId() {
+        return postId;
+    }
+    
+    public String getAuthorId() {
+        return authorId;
+    }
+    
+    public Post getPost() {
+        return post;
+    }
+    
+    @Override
+    public String toString() {
+        return "FeedEvent{" +
+                "type=" + type +
+                ", postId='" + postId + '\'' +
+                ", authorId='" + authorId + '\'' +
+                '}';
+    }
+}
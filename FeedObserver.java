@@ -1,3 +1,5 @@
+import java.util.List;
+
 /**
  * Observer interface for real-time feed updates
  * Design Pattern: Observer Pattern
@@ -5,5 +7,15 @@
 public interface FeedObserver {
     void onNewPost(Post post, String followerId);
     void onPostDeleted(String postId, String followerId);
+    
+    // Recent posts of a newly followed author, oldest first
+    default void onBackfill(List<Post> posts, String followerId) {
+        for (Post post : posts) {
+            onNewPost(post, followerId);
+        }
+    }
+    
+    // Follower stopped following the author; drop any of the author's posts not yet consumed
+    default void onAuthorUnfollowed(String authorId, String followerId) {
+    }
 }
-
@@ -0,0 +1,76 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One device's cursor into a user's shared feed buffer.
+ * A subscription is meant to be read by a single thread.
+ */
+public class FeedSubscription {
+    private final String userId;
+    private final UserFeedBuffer buffer;
+    private final SubscriptionRegistry registry;
+    private long offset;
+    private volatile boolean active;
+    
+    FeedSubscription(String userId, UserFeedBuffer buffer, SubscriptionRegistry registry) {
+        this.userId = userId;
+        this.buffer = buffer;
+        this.registry = registry;
+        this.offset = buffer.getNextOffset(); // Only events published after subscribing
+        this.active = true;
+    }
+    
+    // Next event, or null if the device is caught up
+    public FeedEvent poll() {
+        List<FeedEvent> events = read(1);
+        return events.isEmpty() ? null : events.get(0);
+    }
+    
+    // Up to maxEvents unread events in publish order
+    public List<FeedEvent> read(int maxEvents) {
+        List<FeedEvent> events = new ArrayList<>();
+        offset = buffer.read(offset, maxEvents, events);
+        return events;
+    }
+    
+    // Waits for the next event; returns null on timeout
+    public FeedEvent take(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        FeedEvent event = poll();
+        while (event == null) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0 || !buffer.awaitOffset(offset, remaining)) {
+                return null;
+            }
+            event = poll(); // May still be null if the new slots were purged
+        }
+        return event;
+    }
+    
+    public long getOffset() {
+        return offset;
+    }
+    
+    public void seek(long offset) {
+        this.offset = offset;
+    }
+    
+    public String getUserId() {
+        return userId;
+    }
+    
+    public boolean isActive() {
+        return active;
+    }
+    
+    public void close() {
+        if (active) {
+            active = false;
+            registry.unsubscribe(this);
+        }
+    }
+    
+    UserFeedBuffer getBuffer() {
+        return buffer;
+    }
+}
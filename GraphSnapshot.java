@@ -0,0 +1,357 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar snapshot of users, follow edges and posts for fast cold starts.
+ *
+ * File layout (big-endian):
+ *   int magic, int version
+ *   int userCount, int edgeCount, int postCount
+ *   string column userIds (sorted), string column names
+ *   int[userCount + 1] following offsets, int[edgeCount] followee indexes (sorted per user)
+ *   int[userCount + 1] post offsets (posts grouped by author, in upload order)
+ *   string column postIds, long[postCount] timestamps (epoch nanos, UTC), string column contents
+ *
+ * A string column is int[count + 1] byte offsets followed by the UTF-8 bytes, so
+ * every value can be decoded independently and in parallel. A malformed or truncated
+ * file is reported as an IOException before any of it reaches the repository. Loading maps the file
+ * with NIO one column at a time, so no single mapping has to span the 2 GB a
+ * ByteBuffer can address, and hands pre-sized arrays to SocialMediaRepository.bulkLoad.
+ */
+public class GraphSnapshot {
+    private static final int MAGIC = 0x534D4E53; // "SMNS"
+    private static final int VERSION = 1;
+    private static final int DECODE_CHUNK = 16 * 1024;
+
+    // Columns captured from a repository, ready to be written without holding any lock
+    private final List<String> userIds;
+    private final List<String> names;
+    private final int[] followingOffsets;
+    private final int[] followingTargets;
+    private final int[] postOffsets;
+    private final List<String> postIds;
+    private final long[] timestamps;
+    private final List<String> contents;
+
+    private GraphSnapshot(List<String> userIds, List<String> names, int[] followingOffsets, int[] followingTargets,
+                          int[] postOffsets, List<String> postIds, long[] timestamps, List<String> contents) {
+        this.userIds = userIds;
+        this.names = names;
+        this.followingOffsets = followingOffsets;
+        this.followingTargets = followingTargets;
+        this.postOffsets = postOffsets;
+        this.postIds = postIds;
+        this.timestamps = timestamps;
+        this.contents = contents;
+    }
+
+    public static void write(SocialMediaRepository repository, Path path) throws IOException {
+        capture(repository).writeTo(path);
+    }
+
+    /**
+     * Copies the columns out of the repository. Only references and int/long arrays are
+     * copied; UTF-8 encoding and file I/O happen later in writeTo, so callers can hold a
+     * lock around capture alone.
+     */
+    public static GraphSnapshot capture(SocialMediaRepository repository) {
+        List<String> userIds = new ArrayList<>(repository.getAllUsers().keySet());
+        Collections.sort(userIds);
+        Map<String, Integer> index = new HashMap<>(userIds.size() * 4 / 3 + 1);
+        for (int i = 0; i < userIds.size(); i++) {
+            index.put(userIds.get(i), i);
+        }
+
+        List<String> names = new ArrayList<>(userIds.size());
+        int[] followingOffsets = new int[userIds.size() + 1];
+        List<int[]> followingRows = new ArrayList<>(userIds.size());
+        int[] postOffsets = new int[userIds.size() + 1];
+        List<Post> posts = new ArrayList<>();
+        for (int u = 0; u < userIds.size(); u++) {
+            String userId = userIds.get(u);
+            names.add(repository.getUser(userId).getName());
+
+            int[] row = repository.getSocialGraph().getFollowing(userId).stream()
+                    .map(index::get)
+                    .filter(Objects::nonNull)
+                    .mapToInt(Integer::intValue)
+                    .sorted()
+                    .toArray();
+            followingRows.add(row);
+            followingOffsets[u + 1] = followingOffsets[u] + row.length;
+
+            for (String postId : repository.getUserPostIds(userId)) {
+                Post post = repository.getPost(postId);
+                if (post != null) {
+                    posts.add(post);
+                }
+            }
+            postOffsets[u + 1] = posts.size();
+        }
+
+        int[] followingTargets = new int[followingOffsets[userIds.size()]];
+        for (int u = 0; u < followingRows.size(); u++) {
+            int[] row = followingRows.get(u);
+            System.arraycopy(row, 0, followingTargets, followingOffsets[u], row.length);
+        }
+        List<String> postIds = new ArrayList<>(posts.size());
+        long[] timestamps = new long[posts.size()];
+        List<String> contents = new ArrayList<>(posts.size());
+        for (int p = 0; p < posts.size(); p++) {
+            Post post = posts.get(p);
+            postIds.add(post.getPostId());
+            timestamps[p] = toEpochNanos(post.getTimestamp());
+            contents.add(post.getContent());
+        }
+        return new GraphSnapshot(userIds, names, followingOffsets, followingTargets,
+                postOffsets, postIds, timestamps, contents);
+    }
+
+    public void writeTo(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(userIds.size());
+            out.writeInt(followingTargets.length);
+            out.writeInt(postIds.size());
+
+            writeStrings(out, userIds);
+            writeStrings(out, names);
+            writeInts(out, followingOffsets);
+            writeInts(out, followingTargets);
+            writeInts(out, postOffsets);
+            writeStrings(out, postIds);
+            for (long timestamp : timestamps) {
+                out.writeLong(timestamp);
+            }
+            writeStrings(out, contents);
+        }
+    }
+
+    public static SocialMediaRepository load(Path path) throws IOException {
+        int userCount;
+        int edgeCount;
+        int postCount;
+        String[] userIds;
+        String[] names;
+        int[] followingOffsets;
+        int[] followingTargets;
+        int[] postOffsets;
+        String[] postIds;
+        long[] timestamps;
+        String[] contents;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ColumnReader reader = new ColumnReader(channel);
+            ByteBuffer header = reader.map(5 * Integer.BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a social graph snapshot: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            userCount = header.getInt();
+            edgeCount = header.getInt();
+            postCount = header.getInt();
+            if (userCount < 0 || edgeCount < 0 || postCount < 0) {
+                throw new IOException("Corrupt snapshot: negative count");
+            }
+            // Offsets and fixed-width columns alone must fit in the rest of the file
+            long minimumBytes = (4L * userCount + edgeCount + 2L * postCount + 6) * Integer.BYTES
+                    + (long) postCount * Long.BYTES;
+            if (minimumBytes > reader.remaining()) {
+                throw new IOException("Corrupt snapshot: counts exceed file size");
+            }
+
+            userIds = readStrings(reader, userCount);
+            names = readStrings(reader, userCount);
+            followingOffsets = readOffsets(reader, userCount, edgeCount);
+            followingTargets = reader.readInts(edgeCount);
+            postOffsets = readOffsets(reader, userCount, postCount);
+            postIds = readStrings(reader, postCount);
+            timestamps = reader.readLongs(postCount);
+            contents = readStrings(reader, postCount);
+        }
+
+        if (IntStream.range(1, userCount).parallel().anyMatch(u -> userIds[u - 1].compareTo(userIds[u]) >= 0)) {
+            throw new IOException("Corrupt snapshot: user ids are not strictly increasing");
+        }
+        if (IntStream.range(0, userCount).parallel()
+                .anyMatch(u -> !isValidFollowingRow(followingOffsets, followingTargets, u, userCount))) {
+            throw new IOException("Corrupt snapshot: bad follow edge");
+        }
+
+        User[] users = new User[userCount];
+        Post[] posts = new Post[postCount];
+        IntStream.range(0, userCount).parallel().forEach(u -> {
+            users[u] = UserFactory.createUser(userIds[u], names[u]);
+            for (int p = postOffsets[u]; p < postOffsets[u + 1]; p++) {
+                posts[p] = PostFactory.createPost(postIds[p], userIds[u], contents[p],
+                        fromEpochNanos(timestamps[p]));
+            }
+        });
+
+        long maxPostNumber = Arrays.stream(postIds).parallel()
+                .mapToLong(PostFactory::getPostNumber)
+                .max()
+                .orElse(-1);
+        PostFactory.reserveThrough(maxPostNumber);
+
+        SocialMediaRepository repository = new SocialMediaRepository(userCount, postCount);
+        repository.bulkLoad(users, followingOffsets, followingTargets, posts, postOffsets);
+        return repository;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        byte[][] encoded = new byte[values.size()][];
+        int offset = 0;
+        out.writeInt(0);
+        for (int i = 0; i < values.size(); i++) {
+            encoded[i] = values.get(i).getBytes(StandardCharsets.UTF_8);
+            offset += encoded[i].length;
+            out.writeInt(offset);
+        }
+        for (byte[] bytes : encoded) {
+            out.write(bytes);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    // Followees must be other existing users, in strictly increasing order
+    private static boolean isValidFollowingRow(int[] offsets, int[] targets, int user, int userCount) {
+        int from = offsets[user];
+        int to = offsets[user + 1];
+        for (int i = from; i < to; i++) {
+            int target = targets[i];
+            if (target < 0 || target >= userCount || target == user || (i > from && target <= targets[i - 1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Offsets must start at 0, never decrease and end at total
+    private static int[] readOffsets(ColumnReader reader, int count, int total) throws IOException {
+        int[] offsets = readOffsets(reader, count);
+        if (offsets[count] != total) {
+            throw new IOException("Corrupt snapshot: offsets do not match counts");
+        }
+        return offsets;
+    }
+
+    private static int[] readOffsets(ColumnReader reader, int count) throws IOException {
+        int[] offsets = reader.readInts(count + 1);
+        if (offsets[0] != 0) {
+            throw new IOException("Corrupt snapshot: offsets do not start at 0");
+        }
+        for (int i = 0; i < count; i++) {
+            if (offsets[i + 1] < offsets[i]) {
+                throw new IOException("Corrupt snapshot: decreasing offsets");
+            }
+        }
+        return offsets;
+    }
+
+    // Maps the column's bytes as one region and decodes it in parallel chunks, each through its own view
+    private static String[] readStrings(ColumnReader reader, int count) throws IOException {
+        int[] offsets = readOffsets(reader, count);
+        ByteBuffer bytes = reader.map(offsets[count]);
+        String[] values = new String[count];
+        int chunks = (count + DECODE_CHUNK - 1) / DECODE_CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            ByteBuffer view = bytes.duplicate();
+            byte[] scratch = new byte[256];
+            int end = Math.min(count, (chunk + 1) * DECODE_CHUNK);
+            for (int i = chunk * DECODE_CHUNK; i < end; i++) {
+                int length = offsets[i + 1] - offsets[i];
+                if (scratch.length < length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                view.position(offsets[i]);
+                view.get(scratch, 0, length);
+                values[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+        });
+        return values;
+    }
+
+    private static long toEpochNanos(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + timestamp.getNano();
+    }
+
+    private static LocalDateTime fromEpochNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    // Sequential reader that maps each region of the file on demand. Fixed-width columns
+    // are copied out through windows of at most MAX_WINDOW bytes; mappings stay valid
+    // after the channel is closed. Every read is checked against the file size first.
+    private static class ColumnReader {
+        private static final int MAX_WINDOW = 1 << 30;
+
+        private final FileChannel channel;
+        private final long size;
+        private long position;
+
+        private ColumnReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        private long remaining() {
+            return size - position;
+        }
+
+        private ByteBuffer map(int length) throws IOException {
+            if (length < 0 || length > remaining()) {
+                throw new IOException("Corrupt snapshot: truncated at byte " + position);
+            }
+            ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            position += length;
+            return region;
+        }
+
+        private int[] readInts(int count) throws IOException {
+            if (count < 0 || (long) count * Integer.BYTES > remaining()) {
+                throw new IOException("Corrupt snapshot: truncated at byte " + position);
+            }
+            int[] values = new int[count];
+            for (int done = 0; done < count; ) {
+                int n = Math.min(count - done, MAX_WINDOW / Integer.BYTES);
+                map(n * Integer.BYTES).asIntBuffer().get(values, done, n);
+                done += n;
+            }
+            return values;
+        }
+
+        private long[] readLongs(int count) throws IOException {
+            if (count < 0 || (long) count * Long.BYTES > remaining()) {
+                throw new IOException("Corrupt snapshot: truncated at byte " + position);
+            }
+            long[] values = new long[count];
+            for (int done = 0; done < count; ) {
+                int n = Math.min(count - done, MAX_WINDOW / Long.BYTES);
+                map(n * Long.BYTES).asLongBuffer().get(values, done, n);
+                done += n;
+            }
+            return values;
+        }
+    }
+}
@@ -45,6 +45,13 @@ public class Main {
         System.out.println("User3 followed User1");
         System.out.println();
         
+        // Social graph queries
+        System.out.println("User1 followers: " + network.getFollowerCount("user1")
+                + ", following: " + network.getFollowingCount("user1"));
+        System.out.println("User1 mutual follows: " + network.getMutualFollows("user1"));
+        System.out.println("Suggested for User3: " + network.getSuggestedUsers("user3", 5));
+        System.out.println();
+        
         // Upload initial posts
         System.out.println("Uploading initial posts...");
         String post1 = network.uploadPost("user1", "Hello world! This is my first post.");
@@ -142,10 +149,23 @@ public class Main {
         }
         System.out.println();
         
+        // Search posts by content
+        System.out.println("=== Search Results for \"concurrent post\" (User1) ===");
+        List<Post> searchResults = network.searchPosts("user1", "\"concurrent post\"");
+        for (int i = 0; i < searchResults.size(); i++) {
+            Post post = searchResults.get(i);
+            System.out.println((i + 1) + ". [" + post.getUserId() + "] " + post.getContent());
+        }
+        System.out.println();
+        
         // Demonstrate real-time feed updates
         System.out.println("=== Demonstrating Real-Time Feed Updates ===");
         System.out.println("User2 will post, and User1 should receive it in real-time...\n");
         
+        // Two devices of User1 share one feed buffer
+        FeedSubscription phone = network.subscribe("user1");
+        FeedSubscription laptop = network.subscribe("user1");
+        
         // Start a thread to listen for real-time updates
         CountDownLatch realtimeLatch = new CountDownLatch(2);
         
@@ -183,6 +203,18 @@ public class Main {
         }
         System.out.println();
         
+        // Each device reads the shared buffer from its own offset
+        for (FeedEvent event : phone.read(10)) {
+            System.out.println("[PHONE] User1 event: " + event.getType() + " " + event.getPostId());
+        }
+        FeedEvent laptopEvent;
+        while ((laptopEvent = laptop.poll()) != null) {
+            System.out.println("[LAPTOP] User1 event: " + laptopEvent.getType() + " " + laptopEvent.getPostId());
+        }
+        phone.close();
+        laptop.close();
+        System.out.println();
+        
         // Delete a post
         System.out.println("Deleting post...");
         boolean deleted = network.deletePost("user1", post1);
@@ -1,20 +1,46 @@
 import java.time.LocalDateTime;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Factory for creating Post objects
  * Design Pattern: Factory Pattern
  */
 public class PostFactory {
-    private static final AtomicInteger counter = new AtomicInteger(1);
+    private static final String POST_ID_PREFIX = "POST_";
+    private static final AtomicLong counter = new AtomicLong(1);
     
     public static Post createPost(String userId, String content) {
-        String postId = "POST_" + counter.getAndIncrement();
+        String postId = POST_ID_PREFIX + counter.getAndIncrement();
         return new Post(postId, userId, content);
     }
     
     public static Post createPost(String postId, String userId, String content, LocalDateTime timestamp) {
         return new Post(postId, userId, content, timestamp);
     }
+    
+    // Numeric part of a generated id "POST_n" (no leading zeros), or -1 for any other id
+    public static long getPostNumber(String postId) {
+        int start = POST_ID_PREFIX.length();
+        int length = postId.length();
+        if (!postId.startsWith(POST_ID_PREFIX) || length == start || length - start > 18
+                || (postId.charAt(start) == '0' && length - start > 1)) {
+            return -1;
+        }
+        long number = 0;
+        for (int i = start; i < length; i++) {
+            char c = postId.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+    
+    // Make sure generated ids never collide with posts loaded from elsewhere;
+    // getPostNumber caps ids at 18 digits, so postNumber + 1 cannot overflow
+    public static void reserveThrough(long postNumber) {
+        counter.accumulateAndGet(postNumber + 1, Math::max);
+    }
 }
 
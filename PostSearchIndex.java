@@ -0,0 +1,456 @@
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Incremental inverted index over post content.
+ * Each indexed post gets a dense doc id in upload order. Each term maps to a
+ * block-encoded PostingList of doc ids with the term's positions, and each author
+ * maps to a PostingList of their doc ids. Queries walk cursors from the newest doc
+ * id down, intersecting terms by leapfrogging, and stop as soon as enough results
+ * are found. An author filter joins the leapfrog as a union cursor when the
+ * authors have far fewer posts than the rarest term (UNION_COST_FACTOR), and is
+ * otherwise checked per aligned doc against a bitmap of author ids. Deleted posts leave their ids in
+ * the posting lists and are skipped at query time.
+ */
+public class PostSearchIndex {
+    // A union step (heap sift plus a random jump of the term cursors, and a block decode per
+    // author to start) costs about this many sequential term steps with a bitmap check
+    private static final int UNION_COST_FACTOR = 16;
+
+    private final Map<String, PostingList> postings;       // term -> doc ids with positions
+    private final Map<String, Integer> authorIds;          // authorId -> dense author id
+    private final List<PostingList> authorPostings;        // dense author id -> doc ids
+    private final List<Post> docs;                         // docId -> post (null once deleted)
+    private final Map<String, Integer> docIds;             // postId -> docId
+    private int[] docAuthors;       // docId -> dense author id
+    private long[] docTimes;        // docId -> timestamp (epoch nanos)
+    private long[] maxTimeThrough;  // docId -> max timestamp of docs 0..docId
+    private int[] lateDocs;         // doc ids whose timestamp is below an earlier doc's
+    private int lateDocCount;
+    private final MinTimeTree lateDocTimes; // timestamps of lateDocs, for the last late doc at or before a time
+    private final ReadWriteLock lock;
+
+    public PostSearchIndex() {
+        this(16);
+    }
+
+    public PostSearchIndex(int expectedPosts) {
+        int capacity = Math.max(expectedPosts, 16);
+        this.postings = new HashMap<>();
+        this.authorIds = new HashMap<>();
+        this.authorPostings = new ArrayList<>();
+        this.docs = new ArrayList<>(capacity);
+        this.docIds = new HashMap<>(capacity * 4 / 3 + 1);
+        this.docAuthors = new int[capacity];
+        this.docTimes = new long[capacity];
+        this.maxTimeThrough = new long[capacity];
+        this.lateDocs = new int[16];
+        this.lateDocCount = 0;
+        this.lateDocTimes = new MinTimeTree();
+        this.lock = new ReentrantReadWriteLock();
+    }
+
+    public void addPost(Post post) {
+        List<String> terms = tokenize(post.getContent());
+        lock.writeLock().lock();
+        try {
+            index(post, terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Index many posts at once; tokenizing runs in parallel and doc ids follow the given order
+    public void addPosts(List<Post> posts) {
+        List<List<String>> terms = posts.parallelStream()
+                .map(post -> tokenize(post.getContent()))
+                .collect(Collectors.toList());
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < posts.size(); i++) {
+                index(posts.get(i), terms.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removePost(String postId) {
+        lock.writeLock().lock();
+        try {
+            Integer docId = docIds.remove(postId);
+            if (docId != null) {
+                docs.set(docId, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Search posts matching every term of the query, newest first.
+     * A query wrapped in double quotes is treated as a phrase and the terms must
+     * appear consecutively. When authorIds is not null only their posts match;
+     * from and to (inclusive, nullable) restrict the post timestamp.
+     */
+    public List<Post> search(String query, Collection<String> allowedAuthorIds,
+                             LocalDateTime from, LocalDateTime to, int limit) {
+        String trimmed = query.trim();
+        boolean phrase = trimmed.length() > 1 && trimmed.startsWith("\"") && trimmed.endsWith("\"");
+        List<String> terms = tokenize(trimmed);
+        List<Post> results = new ArrayList<>();
+        if (terms.isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<String, PostingList.Cursor> termCursors = new LinkedHashMap<>();
+            for (String term : terms) {
+                if (!termCursors.containsKey(term)) {
+                    PostingList list = postings.get(term);
+                    if (list == null) {
+                        return results;
+                    }
+                    termCursors.put(term, list.cursor());
+                }
+            }
+            // Rarest term first, so it drives the leapfrog
+            List<String> byRarity = new ArrayList<>(termCursors.keySet());
+            byRarity.sort(Comparator.comparingInt(term -> postings.get(term).size()));
+            PostingList.Cursor[] cursors = new PostingList.Cursor[byRarity.size()];
+            for (int i = 0; i < cursors.length; i++) {
+                cursors[i] = termCursors.get(byRarity.get(i));
+            }
+            PostingList.Cursor[] phraseCursors = new PostingList.Cursor[terms.size()];
+            for (int k = 0; k < terms.size(); k++) {
+                phraseCursors[k] = termCursors.get(terms.get(k));
+            }
+
+            AuthorCursor authors = null;
+            BitSet allowedAuthors = null;
+            if (allowedAuthorIds != null) {
+                List<PostingList> authorLists = new ArrayList<>();
+                BitSet allowed = new BitSet();
+                long authorDocs = 0;
+                for (String authorId : allowedAuthorIds) {
+                    Integer author = authorIds.get(authorId);
+                    if (author != null) {
+                        authorLists.add(authorPostings.get(author));
+                        authorDocs += authorPostings.get(author).size();
+                        allowed.set(author);
+                    }
+                }
+                if (authorLists.isEmpty()) {
+                    return results;
+                }
+                if (authorDocs * UNION_COST_FACTOR <= postings.get(byRarity.get(0)).size()) {
+                    List<PostingList.Cursor> authorCursors = new ArrayList<>(authorLists.size());
+                    for (PostingList list : authorLists) {
+                        authorCursors.add(list.cursor());
+                    }
+                    authors = new AuthorCursor(authorCursors);
+                } else {
+                    allowedAuthors = allowed;
+                }
+            }
+
+            long fromNanos = from == null ? Long.MIN_VALUE : toEpochNanos(from);
+            long toNanos = to == null ? Long.MAX_VALUE : toEpochNanos(to);
+            int lowDoc = lowestDocFrom(fromNanos);
+            int target = highestDocUpTo(toNanos);
+
+            while (target >= lowDoc && results.size() < limit) {
+                int candidate = align(cursors, authors, target);
+                if (candidate < lowDoc) {
+                    break;
+                }
+                // Cheapest rejection first: a filtered scan touches one array per rejected doc
+                if ((allowedAuthors == null || allowedAuthors.get(docAuthors[candidate]))
+                        && docTimes[candidate] >= fromNanos && docTimes[candidate] <= toNanos
+                        && docs.get(candidate) != null
+                        && (!phrase || matchesPhrase(phraseCursors))) {
+                    results.add(docs.get(candidate));
+                }
+                target = candidate - 1;
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lowercased alphanumeric terms in order of appearance
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private void index(Post post, List<String> terms) {
+        if (docIds.containsKey(post.getPostId())) {
+            return;
+        }
+        int docId = docs.size();
+        docs.add(post);
+        docIds.put(post.getPostId(), docId);
+
+        if (docId == docTimes.length) {
+            docAuthors = Arrays.copyOf(docAuthors, docId * 2);
+            docTimes = Arrays.copyOf(docTimes, docId * 2);
+            maxTimeThrough = Arrays.copyOf(maxTimeThrough, docId * 2);
+        }
+        long time = toEpochNanos(post.getTimestamp());
+        docTimes[docId] = time;
+        if (docId > 0 && time < maxTimeThrough[docId - 1]) {
+            maxTimeThrough[docId] = maxTimeThrough[docId - 1];
+            if (lateDocCount == lateDocs.length) {
+                lateDocs = Arrays.copyOf(lateDocs, lateDocCount * 2);
+            }
+            lateDocs[lateDocCount++] = docId;
+            lateDocTimes.add(time);
+        } else {
+            maxTimeThrough[docId] = time;
+        }
+
+        Map<String, int[]> termPositions = new LinkedHashMap<>(); // term -> {count, positions...}
+        for (int position = 0; position < terms.size(); position++) {
+            int[] entry = termPositions.computeIfAbsent(terms.get(position), k -> new int[2]);
+            if (entry[0] + 1 == entry.length) {
+                entry = Arrays.copyOf(entry, entry.length * 2);
+                termPositions.put(terms.get(position), entry);
+            }
+            entry[++entry[0]] = position;
+        }
+        for (Map.Entry<String, int[]> entry : termPositions.entrySet()) {
+            int[] positions = entry.getValue();
+            postings.computeIfAbsent(entry.getKey(), k -> new PostingList(true))
+                    .add(docId, Arrays.copyOfRange(positions, 1, positions[0] + 1), positions[0]);
+        }
+        Integer author = authorIds.get(post.getUserId());
+        if (author == null) {
+            author = authorPostings.size();
+            authorIds.put(post.getUserId(), author);
+            authorPostings.add(new PostingList(false));
+        }
+        authorPostings.get(author).add(docId);
+        docAuthors[docId] = author;
+    }
+
+    // Leapfrog all cursors down to the largest doc id <= target that they share, or -1
+    private static int align(PostingList.Cursor[] cursors, AuthorCursor authors, int target) {
+        int candidate = target;
+        while (true) {
+            boolean moved = false;
+            for (PostingList.Cursor cursor : cursors) {
+                int doc = cursor.advanceTo(candidate);
+                if (doc < 0) {
+                    return -1;
+                }
+                if (doc < candidate) {
+                    candidate = doc;
+                    moved = true;
+                }
+            }
+            if (authors != null) {
+                int doc = authors.advanceTo(candidate);
+                if (doc < 0) {
+                    return -1;
+                }
+                if (doc < candidate) {
+                    candidate = doc;
+                    moved = true;
+                }
+            }
+            if (!moved) {
+                return candidate;
+            }
+        }
+    }
+
+    // All cursors sit on the same doc; check the terms occur consecutively
+    private static boolean matchesPhrase(PostingList.Cursor[] phraseCursors) {
+        PostingList.Cursor first = phraseCursors[0];
+        for (int i = 0; i < first.positionCount(); i++) {
+            int start = first.position(i);
+            boolean match = true;
+            for (int k = 1; k < phraseCursors.length && match; k++) {
+                match = phraseCursors[k].hasPosition(start + k);
+            }
+            if (match) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // First doc id that may have a timestamp >= fromNanos; every earlier doc is older
+    private int lowestDocFrom(long fromNanos) {
+        int lo = 0;
+        int hi = docs.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (maxTimeThrough[mid] >= fromNanos) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    // Last doc id with a timestamp <= toNanos; only late docs can follow an in-order doc that is newer
+    private int highestDocUpTo(long toNanos) {
+        int lo = 0;
+        int hi = docs.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (maxTimeThrough[mid] > toNanos) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        int highest = lo - 1;
+        int late = lateDocTimes.lastAtMost(toNanos);
+        return late < 0 ? highest : Math.max(highest, lateDocs[late]);
+    }
+
+    private static long toEpochNanos(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + timestamp.getNano();
+    }
+
+    /**
+     * Min-tree over an append-only sequence of timestamps. Leaves past the end hold
+     * Long.MAX_VALUE, so appends and "last entry <= bound" lookups are both O(log n).
+     */
+    private static class MinTimeTree {
+        private long[] tree;   // node i covers children 2i and 2i + 1; leaves start at capacity
+        private int capacity;
+        private int size;
+
+        MinTimeTree() {
+            this.capacity = 16;
+            this.tree = new long[2 * capacity];
+            Arrays.fill(tree, Long.MAX_VALUE);
+            this.size = 0;
+        }
+
+        void add(long time) {
+            if (size == capacity) {
+                grow();
+            }
+            int node = capacity + size++;
+            tree[node] = time;
+            for (node >>>= 1; node > 0; node >>>= 1) {
+                tree[node] = Math.min(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+
+        // Index of the last entry <= bound, or -1
+        int lastAtMost(long bound) {
+            if (size == 0 || tree[1] > bound) {
+                return -1;
+            }
+            int node = 1;
+            while (node < capacity) {
+                node = tree[2 * node + 1] <= bound ? 2 * node + 1 : 2 * node;
+            }
+            return node - capacity;
+        }
+
+        private void grow() {
+            long[] grown = new long[4 * capacity];
+            Arrays.fill(grown, Long.MAX_VALUE);
+            System.arraycopy(tree, capacity, grown, 2 * capacity, size);
+            capacity *= 2;
+            tree = grown;
+            for (int node = capacity - 1; node > 0; node--) {
+                tree[node] = Math.min(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+    }
+
+    /**
+     * Union of several authors' posting lists, walked newest first.
+     * A max-heap keyed by each cursor's current doc id means only the cursors
+     * above the target are moved.
+     */
+    private static class AuthorCursor {
+        private final PostingList.Cursor[] heap;
+        private final int[] heapDocs;
+        private int heapSize;
+
+        AuthorCursor(List<PostingList.Cursor> cursors) {
+            this.heap = cursors.toArray(new PostingList.Cursor[0]);
+            this.heapDocs = new int[heap.length];
+            Arrays.fill(heapDocs, Integer.MAX_VALUE); // Not positioned yet
+            this.heapSize = heap.length;
+        }
+
+        // Largest doc id <= target of any author, or -1
+        int advanceTo(int target) {
+            while (heapSize > 0 && heapDocs[0] > target) {
+                int doc = heap[0].advanceTo(target);
+                if (doc < 0) {
+                    heapSize--;
+                    heap[0] = heap[heapSize];
+                    heapDocs[0] = heapDocs[heapSize];
+                } else {
+                    heapDocs[0] = doc;
+                }
+                siftDown();
+            }
+            return heapSize == 0 ? -1 : heapDocs[0];
+        }
+
+        private void siftDown() {
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                int largest = i;
+                if (left < heapSize && heapDocs[left] > heapDocs[largest]) {
+                    largest = left;
+                }
+                if (left + 1 < heapSize && heapDocs[left + 1] > heapDocs[largest]) {
+                    largest = left + 1;
+                }
+                if (largest == i) {
+                    return;
+                }
+                PostingList.Cursor cursor = heap[i];
+                heap[i] = heap[largest];
+                heap[largest] = cursor;
+                int doc = heapDocs[i];
+                heapDocs[i] = heapDocs[largest];
+                heapDocs[largest] = doc;
+                i = largest;
+            }
+        }
+    }
+}
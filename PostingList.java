@@ -0,0 +1,247 @@
+import java.util.Arrays;
+
+/**
+ * Compact posting list for the search index.
+ * Doc ids are appended in increasing order and stored in blocks of BLOCK_SIZE
+ * entries. Within a block each doc id is a varint delta from the previous one.
+ * Term positions, when kept, live in a separate stream (per doc: varint count,
+ * then varint position deltas) so cursors only decode them for phrase checks.
+ * The first doc id and byte offsets of every block are kept as skip data, so a
+ * Cursor can jump to any doc id while decoding only one block.
+ */
+public class PostingList {
+    public static final int BLOCK_SIZE = 128;
+
+    private final boolean withPositions;
+    private byte[] data;
+    private int length;          // bytes used in data
+    private byte[] positionData;
+    private int positionLength;  // bytes used in positionData
+    private int[] blockFirstDoc; // skip data: first doc id of each block
+    private int[] blockOffset;   // skip data: byte offset of each block in data
+    private int[] blockPositionOffset; // skip data: byte offset of each block in positionData
+    private int blocks;
+    private int size;            // number of doc ids
+    private int lastDocId;
+
+    public PostingList(boolean withPositions) {
+        this.withPositions = withPositions;
+        this.data = new byte[16];
+        this.length = 0;
+        this.positionData = withPositions ? new byte[16] : null;
+        this.positionLength = 0;
+        this.blockFirstDoc = new int[1];
+        this.blockOffset = new int[1];
+        this.blockPositionOffset = new int[1];
+        this.blocks = 0;
+        this.size = 0;
+        this.lastDocId = -1;
+    }
+
+    // Doc ids must be strictly increasing; positions must be sorted and are ignored without positions
+    public void add(int docId, int[] positions, int positionCount) {
+        if (docId <= lastDocId) {
+            throw new IllegalArgumentException("Doc ids must be added in increasing order: " + docId);
+        }
+        if (size % BLOCK_SIZE == 0) {
+            if (blocks == blockFirstDoc.length) {
+                blockFirstDoc = Arrays.copyOf(blockFirstDoc, blocks * 2);
+                blockOffset = Arrays.copyOf(blockOffset, blocks * 2);
+                blockPositionOffset = Arrays.copyOf(blockPositionOffset, blocks * 2);
+            }
+            blockFirstDoc[blocks] = docId;
+            blockOffset[blocks] = length;
+            blockPositionOffset[blocks] = positionLength;
+            blocks++;
+        } else {
+            data = writeVarint(data, length, docId - lastDocId);
+            length += varintLength(docId - lastDocId);
+        }
+        if (withPositions) {
+            positionData = writeVarint(positionData, positionLength, positionCount);
+            positionLength += varintLength(positionCount);
+            int previous = 0;
+            for (int i = 0; i < positionCount; i++) {
+                positionData = writeVarint(positionData, positionLength, positions[i] - previous);
+                positionLength += varintLength(positions[i] - previous);
+                previous = positions[i];
+            }
+        }
+        lastDocId = docId;
+        size++;
+    }
+
+    public void add(int docId) {
+        add(docId, null, 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int byteSize() {
+        return length + positionLength;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Writes value at offset, growing target if needed; returns the (possibly new) array
+    private static byte[] writeVarint(byte[] target, int offset, int value) {
+        if (offset + 5 > target.length) {
+            target = Arrays.copyOf(target, Math.max(offset + 5, target.length * 2));
+        }
+        while ((value & ~0x7F) != 0) {
+            target[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[offset] = (byte) value;
+        return target;
+    }
+
+    private static int varintLength(int value) {
+        int bytes = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    /**
+     * Walks the list from the newest doc id towards the oldest.
+     * Targets passed to advanceTo must not increase between calls.
+     */
+    public class Cursor {
+        private final int[] docs = new int[Math.min(size, BLOCK_SIZE)];
+        private final int[] positionStart = withPositions ? new int[docs.length + 1] : null;
+        private int[] positions = withPositions ? new int[docs.length] : null;
+        private final int[] varint = new int[2];
+        private int block = blocks;  // block currently decoded, blocks = none yet
+        private int count;           // doc ids in the decoded block
+        private int index = -1;      // current entry in the decoded block
+        private boolean positionsDecoded;
+        private boolean exhausted = false;
+
+        // Moves to the largest doc id <= target and returns it, or -1 if there is none
+        public int advanceTo(int target) {
+            if (exhausted) {
+                return -1;
+            }
+            if (index >= 0 && docs[index] <= target) {
+                return docs[index];
+            }
+            if (index >= 0 && docs[0] <= target) {
+                while (docs[index] > target) {
+                    index--;
+                }
+                return docs[index];
+            }
+            // Skip to the last earlier block that starts at or below target
+            int lo = 0;
+            int hi = Math.min(block, blocks) - 1;
+            int found = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (blockFirstDoc[mid] <= target) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (found < 0) {
+                exhausted = true;
+                index = -1;
+                return -1;
+            }
+            decodeBlock(found);
+            index = count - 1;
+            while (docs[index] > target) {
+                index--;
+            }
+            return docs[index];
+        }
+
+        public int doc() {
+            return exhausted || index < 0 ? -1 : docs[index];
+        }
+
+        // Positions of the term in the current doc; valid until the cursor moves
+        public int positionCount() {
+            decodePositions();
+            return positionStart[index + 1] - positionStart[index];
+        }
+
+        public int position(int i) {
+            decodePositions();
+            return positions[positionStart[index] + i];
+        }
+
+        // True if the term occurs at position in the current doc
+        public boolean hasPosition(int position) {
+            decodePositions();
+            return Arrays.binarySearch(positions, positionStart[index], positionStart[index + 1], position) >= 0;
+        }
+
+        private void decodeBlock(int b) {
+            block = b;
+            count = Math.min(BLOCK_SIZE, size - b * BLOCK_SIZE);
+            positionsDecoded = false;
+            int pos = blockOffset[b];
+            int doc = blockFirstDoc[b];
+            docs[0] = doc;
+            for (int i = 1; i < count; i++) {
+                int[] decoded = readVarint(data, pos);
+                doc += decoded[0];
+                pos = decoded[1];
+                docs[i] = doc;
+            }
+        }
+
+        private void decodePositions() {
+            if (positionsDecoded) {
+                return;
+            }
+            if (!withPositions) {
+                throw new IllegalStateException("Posting list has no positions");
+            }
+            int pos = blockPositionOffset[block];
+            int positionsUsed = 0;
+            for (int i = 0; i < count; i++) {
+                positionStart[i] = positionsUsed;
+                int[] decoded = readVarint(positionData, pos);
+                int positionCount = decoded[0];
+                pos = decoded[1];
+                if (positions.length < positionsUsed + positionCount) {
+                    positions = Arrays.copyOf(positions, Math.max(positionsUsed + positionCount, positions.length * 2));
+                }
+                int position = 0;
+                for (int k = 0; k < positionCount; k++) {
+                    decoded = readVarint(positionData, pos);
+                    position += decoded[0];
+                    pos = decoded[1];
+                    positions[positionsUsed++] = position;
+                }
+            }
+            positionStart[count] = positionsUsed;
+            positionsDecoded = true;
+        }
+
+        // Returns {value, next byte offset} in a reused array
+        private int[] readVarint(byte[] source, int pos) {
+            int value = 0;
+            int shift = 0;
+            byte v;
+            do {
+                v = source[pos++];
+                value |= (v & 0x7F) << shift;
+                shift += 7;
+            } while ((v & 0x80) != 0);
+            varint[0] = value;
+            varint[1] = pos;
+            return varint;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.Arrays;
+
+/**
+ * Immutable per-operation token bucket limits for a group of users.
+ * Operations without a limit are not throttled.
+ */
+public class RateLimitTier {
+    public static final RateLimitTier STANDARD = new RateLimitTier("standard")
+            .withLimit(WriteOperation.UPLOAD_POST, 20, 1.0)
+            .withLimit(WriteOperation.DELETE_POST, 20, 1.0)
+            .withLimit(WriteOperation.FOLLOW_USER, 50, 2.0)
+            .withLimit(WriteOperation.UNFOLLOW_USER, 50, 2.0);
+    
+    public static final RateLimitTier TRUSTED = new RateLimitTier("trusted")
+            .withLimit(WriteOperation.UPLOAD_POST, 100, 10.0)
+            .withLimit(WriteOperation.DELETE_POST, 100, 10.0)
+            .withLimit(WriteOperation.FOLLOW_USER, 200, 10.0)
+            .withLimit(WriteOperation.UNFOLLOW_USER, 200, 10.0);
+    
+    public static final RateLimitTier UNLIMITED = new RateLimitTier("unlimited");
+    
+    private final String name;
+    private final long[] intervalNanos;  // time to earn one token, 0 = unlimited
+    private final long[] burstNanos;     // bucket capacity expressed as time
+    
+    public RateLimitTier(String name) {
+        this(name, new long[WriteOperation.values().length], new long[WriteOperation.values().length]);
+    }
+    
+    private RateLimitTier(String name, long[] intervalNanos, long[] burstNanos) {
+        this.name = name;
+        this.intervalNanos = intervalNanos;
+        this.burstNanos = burstNanos;
+    }
+    
+    // Copy of this tier allowing bursts of up to burst calls, refilled at permitsPerSecond
+    public RateLimitTier withLimit(WriteOperation operation, int burst, double permitsPerSecond) {
+        if (burst <= 0 || permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Burst and rate must be positive");
+        }
+        long[] intervals = Arrays.copyOf(intervalNanos, intervalNanos.length);
+        long[] bursts = Arrays.copyOf(burstNanos, burstNanos.length);
+        intervals[operation.ordinal()] = Math.max(1L, (long) (1_000_000_000L / permitsPerSecond));
+        bursts[operation.ordinal()] = intervals[operation.ordinal()] * burst;
+        return new RateLimitTier(name, intervals, bursts);
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    long getIntervalNanos(WriteOperation operation) {
+        return intervalNanos[operation.ordinal()];
+    }
+    
+    long getBurstNanos(WriteOperation operation) {
+        return burstNanos[operation.ordinal()];
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free per-user, per-operation token bucket limiter.
+ * Each bucket is a single long holding the time at which it will be full again
+ * (GCRA form of a token bucket), updated with CAS. A bucket whose refill time has
+ * passed is equivalent to a fresh one, so idle users are dropped lazily by a sweep
+ * that runs at most once per sweep interval on a calling thread.
+ */
+public class RateLimiter {
+    private static final long DEFAULT_SWEEP_INTERVAL_NANOS = 60_000_000_000L;
+    
+    private final Map<String, AtomicLongArray> buckets;  // userId -> refill time per operation
+    private final Map<String, RateLimitTier> userTiers;  // only users outside the default tier
+    private final RateLimitTier defaultTier;
+    private final long sweepIntervalNanos;
+    private final long originNanos;  // bucket times are relative to this, so a zeroed bucket is full
+    private final AtomicLong nextSweep;
+    
+    public RateLimiter() {
+        this(RateLimitTier.STANDARD, DEFAULT_SWEEP_INTERVAL_NANOS);
+    }
+    
+    public RateLimiter(RateLimitTier defaultTier, long sweepIntervalNanos) {
+        this.buckets = new ConcurrentHashMap<>();
+        this.userTiers = new ConcurrentHashMap<>();
+        this.defaultTier = defaultTier;
+        this.sweepIntervalNanos = sweepIntervalNanos;
+        this.originNanos = System.nanoTime();
+        this.nextSweep = new AtomicLong(sweepIntervalNanos);
+    }
+    
+    public void setTier(String userId, RateLimitTier tier) {
+        if (tier == defaultTier) {
+            userTiers.remove(userId);
+        } else {
+            userTiers.put(userId, tier);
+        }
+    }
+    
+    public RateLimitTier getTier(String userId) {
+        return userTiers.getOrDefault(userId, defaultTier);
+    }
+    
+    // Takes one token for the operation; returns false if the user is over the limit
+    public boolean tryAcquire(String userId, WriteOperation operation) {
+        RateLimitTier tier = getTier(userId);
+        long interval = tier.getIntervalNanos(operation);
+        if (interval == 0) {
+            return true;
+        }
+        long burst = tier.getBurstNanos(operation);
+        long now = System.nanoTime() - originNanos;
+        sweepIfDue(now);
+        
+        AtomicLongArray userBuckets = buckets.computeIfAbsent(userId,
+                k -> new AtomicLongArray(WriteOperation.values().length));
+        int slot = operation.ordinal();
+        while (true) {
+            long fullAt = userBuckets.get(slot);
+            long next = Math.max(fullAt - now, 0) + interval; // 0 means the bucket is full
+            if (next > burst) {
+                return false;
+            }
+            if (userBuckets.compareAndSet(slot, fullAt, now + next)) {
+                return true;
+            }
+        }
+    }
+    
+    public int trackedUsers() {
+        return buckets.size();
+    }
+    
+    private void sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now < due || !nextSweep.compareAndSet(due, now + sweepIntervalNanos)) {
+            return;
+        }
+        buckets.entrySet().removeIf(entry -> isFull(entry.getValue(), now));
+    }
+    
+    private static boolean isFull(AtomicLongArray userBuckets, long now) {
+        for (int i = 0; i < userBuckets.length(); i++) {
+            if (userBuckets.get(i) > now) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
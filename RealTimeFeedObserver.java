@@ -1,3 +1,4 @@
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -31,6 +32,22 @@ public class RealTimeFeedObserver implements FeedObserver {
         }
     }
     
+    @Override
+    public void onBackfill(List<Post> posts, String followerId) {
+        if (active && userId.equals(followerId)) {
+            feedQueue.addAll(posts);
+            System.out.println("[REALTIME] User " + userId + " backfilled " + posts.size() + " posts");
+        }
+    }
+    
+    @Override
+    public void onAuthorUnfollowed(String authorId, String followerId) {
+        if (active && userId.equals(followerId)) {
+            feedQueue.removeIf(post -> post.getUserId().equals(authorId));
+            System.out.println("[REALTIME] User " + userId + " purged queued posts from " + authorId);
+        }
+    }
+    
     public Post getNextPost() throws InterruptedException {
         return feedQueue.take();
     }
@@ -0,0 +1,415 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Follow graph with adjacency kept in both directions.
+ * Users are mapped to dense int ids and every row is a sorted int array with an
+ * explicit length (CSR-style rows that can still grow in place), so degree lookups
+ * are O(1) and mutual follows are a linear merge of two sorted rows.
+ */
+public class SocialGraph {
+    private static final int INITIAL_ROW_CAPACITY = 4;
+
+    private final Map<String, Integer> ids;     // userId -> dense id
+    private final List<String> userIds;         // dense id -> userId
+    private int[][] following;                  // dense id -> sorted followee ids
+    private int[] followingCount;
+    private int[][] followers;                  // dense id -> sorted follower ids
+    private int[] followerCount;
+    private int[] version;                      // dense id -> bumped whenever the user's followings change
+    private final Map<String, Suggestions> suggestionCache; // userId -> cached suggestions
+    private final Set<String> refreshing;                    // users with a queued suggestion refresh
+    private final ExecutorService suggestionRefresher;      // single background thread, drains stale users in order
+    private final ReadWriteLock lock;
+
+    public SocialGraph() {
+        this(16);
+    }
+
+    public SocialGraph(int expectedUsers) {
+        int capacity = Math.max(expectedUsers, 16);
+        this.ids = new HashMap<>(capacity * 4 / 3 + 1);
+        this.userIds = new ArrayList<>(capacity);
+        this.following = new int[capacity][];
+        this.followingCount = new int[capacity];
+        this.followers = new int[capacity][];
+        this.followerCount = new int[capacity];
+        this.version = new int[capacity];
+        this.suggestionCache = new ConcurrentHashMap<>();
+        this.refreshing = ConcurrentHashMap.newKeySet();
+        this.suggestionRefresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "suggestion-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Bulk-load an empty graph from CSR arrays: user i follows
+     * targets[offsets[i]] .. targets[offsets[i + 1] - 1], each row sorted without
+     * duplicates or self-follows. Following rows are copied in parallel; follower
+     * rows are built by a single transpose pass, which leaves them sorted.
+     */
+    public void load(String[] loadedUserIds, int[] offsets, int[] targets) {
+        lock.writeLock().lock();
+        try {
+            if (!userIds.isEmpty()) {
+                throw new IllegalStateException("Bulk load requires an empty graph");
+            }
+            int userCount = loadedUserIds.length;
+            if (userCount > following.length) {
+                following = new int[userCount][];
+                followingCount = new int[userCount];
+                followers = new int[userCount][];
+                followerCount = new int[userCount];
+                version = new int[userCount];
+            }
+            for (int i = 0; i < userCount; i++) {
+                userIds.add(loadedUserIds[i]);
+                ids.put(loadedUserIds[i], i);
+            }
+
+            IntStream.range(0, userCount).parallel().forEach(u -> {
+                following[u] = Arrays.copyOfRange(targets, offsets[u], offsets[u + 1]);
+                followingCount[u] = offsets[u + 1] - offsets[u];
+            });
+
+            for (int i = 0; i < offsets[userCount]; i++) {
+                followerCount[targets[i]]++;
+            }
+            IntStream.range(0, userCount).parallel().forEach(u -> followers[u] = new int[followerCount[u]]);
+            int[] fill = new int[userCount];
+            for (int u = 0; u < userCount; u++) {
+                for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                    int target = targets[i];
+                    followers[target][fill[target]++] = u;
+                }
+            }
+            suggestionCache.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addUser(String userId) {
+        lock.writeLock().lock();
+        try {
+            idFor(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns true if the edge was added
+    public boolean follow(String userId, String followUserId) {
+        lock.writeLock().lock();
+        try {
+            int from = idFor(userId);
+            int to = idFor(followUserId);
+            if (from == to || !insert(following, followingCount, from, to)) {
+                return false;
+            }
+            insert(followers, followerCount, to, from);
+            version[from]++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns true if the edge was removed
+    public boolean unfollow(String userId, String unfollowUserId) {
+        lock.writeLock().lock();
+        try {
+            Integer from = ids.get(userId);
+            Integer to = ids.get(unfollowUserId);
+            if (from == null || to == null || !remove(following, followingCount, from, to)) {
+                return false;
+            }
+            remove(followers, followerCount, to, from);
+            version[from]++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isFollowing(String userId, String followUserId) {
+        lock.readLock().lock();
+        try {
+            Integer from = ids.get(userId);
+            Integer to = ids.get(followUserId);
+            return from != null && to != null
+                    && Arrays.binarySearch(following[from], 0, followingCount[from], to) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getFollowingCount(String userId) {
+        lock.readLock().lock();
+        try {
+            Integer id = ids.get(userId);
+            return id == null ? 0 : followingCount[id];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getFollowerCount(String userId) {
+        lock.readLock().lock();
+        try {
+            Integer id = ids.get(userId);
+            return id == null ? 0 : followerCount[id];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> getFollowing(String userId) {
+        lock.readLock().lock();
+        try {
+            Integer id = ids.get(userId);
+            return id == null ? new ArrayList<>() : toUserIds(following[id], followingCount[id]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> getFollowers(String userId) {
+        lock.readLock().lock();
+        try {
+            Integer id = ids.get(userId);
+            return id == null ? new ArrayList<>() : toUserIds(followers[id], followerCount[id]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Users that both follow userId and are followed by userId
+    public List<String> getMutualFollows(String userId) {
+        lock.readLock().lock();
+        try {
+            Integer id = ids.get(userId);
+            if (id == null) {
+                return new ArrayList<>();
+            }
+            int[] out = following[id];
+            int[] in = followers[id];
+            int i = 0;
+            int j = 0;
+            List<String> mutual = new ArrayList<>();
+            while (i < followingCount[id] && j < followerCount[id]) {
+                if (out[i] < in[j]) {
+                    i++;
+                } else if (out[i] > in[j]) {
+                    j++;
+                } else {
+                    mutual.add(userIds.get(out[i]));
+                    i++;
+                    j++;
+                }
+            }
+            return mutual;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * "People you may know": users followed by the people userId follows, ranked by
+     * how many of them follow that user. Results are cached per user together with
+     * the version stamps they were computed from; a follow change only bumps the
+     * follower's stamp. A stale entry is still served while a background thread
+     * recomputes it, so reads never pay for scoring except on a user's first request.
+     */
+    public List<String> suggestFollows(String userId, int limit) {
+        Suggestions cached = suggestionCache.get(userId);
+        if (cached == null) {
+            cached = computeSuggestions(userId); // Nothing to serve yet
+            if (cached == null) {
+                return new ArrayList<>();
+            }
+            suggestionCache.put(userId, cached);
+        } else if (!isCurrent(cached)) {
+            scheduleRefresh(userId);
+        }
+        List<String> ranked = cached.userIds;
+        return new ArrayList<>(ranked.subList(0, Math.max(0, Math.min(limit, ranked.size()))));
+    }
+
+    // Suggestions depend only on the user's followings and on their followings
+    private boolean isCurrent(Suggestions cached) {
+        lock.readLock().lock();
+        try {
+            if (cached.version != version[cached.id]) {
+                return false;
+            }
+            for (int i = 0; i < cached.friends.length; i++) {
+                if (cached.friendVersions[i] != version[cached.friends[i]]) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void scheduleRefresh(String userId) {
+        if (refreshing.add(userId)) {
+            suggestionRefresher.execute(() -> {
+                try {
+                    Suggestions fresh = computeSuggestions(userId);
+                    if (fresh != null) {
+                        suggestionCache.put(userId, fresh);
+                    }
+                } finally {
+                    refreshing.remove(userId);
+                }
+            });
+        }
+    }
+
+    // Copies the rows under the read lock, then scores without it: candidate ids are
+    // sorted so equal ids form runs, and (score, id) pairs are ranked as packed longs
+    private Suggestions computeSuggestions(String userId) {
+        int id;
+        int userVersion;
+        int[] friends;
+        int[] friendVersions;
+        int[] candidates;
+        lock.readLock().lock();
+        try {
+            Integer existing = ids.get(userId);
+            if (existing == null) {
+                return null;
+            }
+            id = existing;
+            userVersion = version[id];
+            friends = Arrays.copyOf(following[id], followingCount[id]);
+            friendVersions = new int[friends.length];
+            int total = 0;
+            for (int friend : friends) {
+                total += followingCount[friend];
+            }
+            candidates = new int[total];
+            int filled = 0;
+            for (int i = 0; i < friends.length; i++) {
+                int friend = friends[i];
+                friendVersions[i] = version[friend];
+                System.arraycopy(following[friend], 0, candidates, filled, followingCount[friend]);
+                filled += followingCount[friend];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Arrays.sort(candidates);
+        long[] ranked = new long[candidates.length];
+        int rankedCount = 0;
+        for (int start = 0; start < candidates.length; ) {
+            int candidate = candidates[start];
+            int end = start + 1;
+            while (end < candidates.length && candidates[end] == candidate) {
+                end++;
+            }
+            if (candidate != id && Arrays.binarySearch(friends, candidate) < 0) {
+                // Higher score first, then lower id
+                ranked[rankedCount++] = ((long) (Integer.MAX_VALUE - (end - start)) << 32) | candidate;
+            }
+            start = end;
+        }
+        Arrays.sort(ranked, 0, rankedCount);
+
+        List<String> suggestions = new ArrayList<>(rankedCount);
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < rankedCount; i++) {
+                suggestions.add(userIds.get((int) ranked[i]));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new Suggestions(id, userVersion, friends, friendVersions, suggestions);
+    }
+
+    private int idFor(String userId) {
+        Integer existing = ids.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        int id = userIds.size();
+        if (id == following.length) {
+            int capacity = id * 2;
+            following = Arrays.copyOf(following, capacity);
+            followingCount = Arrays.copyOf(followingCount, capacity);
+            followers = Arrays.copyOf(followers, capacity);
+            followerCount = Arrays.copyOf(followerCount, capacity);
+            version = Arrays.copyOf(version, capacity);
+        }
+        following[id] = new int[INITIAL_ROW_CAPACITY];
+        followers[id] = new int[INITIAL_ROW_CAPACITY];
+        userIds.add(userId);
+        ids.put(userId, id);
+        return id;
+    }
+
+    private static boolean insert(int[][] rows, int[] counts, int row, int value) {
+        int count = counts[row];
+        int pos = Arrays.binarySearch(rows[row], 0, count, value);
+        if (pos >= 0) {
+            return false;
+        }
+        pos = -pos - 1;
+        if (count == rows[row].length) {
+            rows[row] = Arrays.copyOf(rows[row], Math.max(count * 2, INITIAL_ROW_CAPACITY));
+        }
+        System.arraycopy(rows[row], pos, rows[row], pos + 1, count - pos);
+        rows[row][pos] = value;
+        counts[row] = count + 1;
+        return true;
+    }
+
+    private static boolean remove(int[][] rows, int[] counts, int row, int value) {
+        int count = counts[row];
+        int pos = Arrays.binarySearch(rows[row], 0, count, value);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(rows[row], pos + 1, rows[row], pos, count - pos - 1);
+        counts[row] = count - 1;
+        return true;
+    }
+
+    private List<String> toUserIds(int[] row, int count) {
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(userIds.get(row[i]));
+        }
+        return result;
+    }
+
+    // Ranked suggestions plus the version stamps of the rows they were computed from
+    private static class Suggestions {
+        private final int id;
+        private final int version;
+        private final int[] friends;
+        private final int[] friendVersions;
+        private final List<String> userIds;
+
+        private Suggestions(int id, int version, int[] friends, int[] friendVersions, List<String> userIds) {
+            this.id = id;
+            this.version = version;
+            this.friends = friends;
+            this.friendVersions = friendVersions;
+            this.userIds = userIds;
+        }
+    }
+}
@@ -1,3 +1,7 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -10,18 +14,54 @@ import java.util.stream.Collectors;
  * Thread-safe and scalable implementation
  */
 public class SocialMediaNetwork implements FeedSubject {
+    private static final int SEARCH_RESULT_LIMIT = 50;
+    private static final int FEED_BUFFER_CAPACITY = 256;
+    private static final int FOLLOW_BACKFILL_LIMIT = 10;
+    private static final int FOLLOWER_LOCK_STRIPES = 64;
+    private static final ThreadLocal<FeedCodec> FEED_CODECS = ThreadLocal.withInitial(FeedCodec::new);
+    
     private final SocialMediaRepository repository;
     private final FeedStrategy feedStrategy;
-    private final Map<String, List<FeedObserver>> observers; // userId -> List of observers
+    private final SubscriptionRegistry subscriptions; // userId -> observers and device buffers
     private final ExecutorService executorService;
+    private final Object[] followerLocks; // striped by follower; orders live deliveries against follow changes
+    private final Map<String, Set<String>> pendingDeliveries; // postId -> followers its async fan-out has not reached yet
     private final ReadWriteLock lock;
+    private final RateLimiter rateLimiter;
     
     public SocialMediaNetwork() {
-        this.repository = new SocialMediaRepository();
+        this(new SocialMediaRepository());
+    }
+    
+    public SocialMediaNetwork(SocialMediaRepository repository) {
+        this.repository = repository;
         this.feedStrategy = new RecentFeedStrategy(10);
-        this.observers = new ConcurrentHashMap<>();
+        this.subscriptions = new SubscriptionRegistry(FEED_BUFFER_CAPACITY);
         this.executorService = Executors.newFixedThreadPool(10);
+        this.followerLocks = new Object[FOLLOWER_LOCK_STRIPES];
+        for (int i = 0; i < FOLLOWER_LOCK_STRIPES; i++) {
+            this.followerLocks[i] = new Object();
+        }
+        this.pendingDeliveries = new ConcurrentHashMap<>();
         this.lock = new ReentrantReadWriteLock();
+        this.rateLimiter = new RateLimiter();
+    }
+    
+    // Build a network from a snapshot written by saveSnapshot
+    public static SocialMediaNetwork loadSnapshot(Path path) throws IOException {
+        return new SocialMediaNetwork(GraphSnapshot.load(path));
+    }
+    
+    // Write users, follow edges and posts to a snapshot file; only the capture holds the lock
+    public void saveSnapshot(Path path) throws IOException {
+        GraphSnapshot snapshot;
+        lock.readLock().lock();
+        try {
+            snapshot = GraphSnapshot.capture(repository);
+        } finally {
+            lock.readLock().unlock();
+        }
+        snapshot.writeTo(path);
     }
     
     // Create a new user
@@ -33,7 +73,6 @@ public class SocialMediaNetwork implements FeedSubject {
             }
             User user = UserFactory.createUser(userId, name);
             repository.addUser(user);
-            observers.putIfAbsent(userId, new CopyOnWriteArrayList<>());
         } finally {
             lock.writeLock().unlock();
         }
@@ -49,46 +88,75 @@ public class SocialMediaNetwork implements FeedSubject {
         } finally {
             lock.readLock().unlock();
         }
+        checkRateLimit(userId, WriteOperation.UPLOAD_POST);
         
         Post post = PostFactory.createPost(userId, content);
         
-        lock.writeLock().lock();
-        try {
-            if (repository.postExists(post.getPostId())) {
-                throw new IllegalArgumentException("Post already posted");
+        // Appending to the author's timeline and reading the followers is one step with
+        // respect to followUser, so each follower gets the post either live or in a backfill
+        List<String> timeline = repository.getUserPostIds(userId);
+        Set<String> followers = ConcurrentHashMap.newKeySet();
+        synchronized (timeline) {
+            lock.writeLock().lock();
+            try {
+                if (repository.postExists(post.getPostId())) {
+                    throw new IllegalArgumentException("Post already posted");
+                }
+                repository.addPost(post);
+            } finally {
+                lock.writeLock().unlock();
             }
-            repository.addPost(post);
-        } finally {
-            lock.writeLock().unlock();
+            followers.addAll(repository.getSocialGraph().getFollowers(userId));
+            pendingDeliveries.put(post.getPostId(), followers);
         }
         
         // Notify observers asynchronously
-        notifyObserversAsync(post, userId);
+        notifyObserversAsync(post, userId, followers);
         
         return post.getPostId();
     }
     
     // Delete a post
     public boolean deletePost(String userId, String postId) {
-        lock.writeLock().lock();
+        boolean knownUser;
+        Post existing;
+        lock.readLock().lock();
         try {
-            Post post = repository.getPost(postId);
-            if (post == null) {
+            knownUser = repository.userExists(userId);
+            existing = repository.getPost(postId);
+        } finally {
+            lock.readLock().unlock();
+        }
+        // An unknown user owns no posts: same answers as before, without a rate-limit bucket
+        if (!knownUser) {
+            if (existing == null) {
                 return false;
             }
-            
-            if (!post.getUserId().equals(userId)) {
-                throw new IllegalArgumentException("User can only delete their own posts");
+            throw new IllegalArgumentException("User can only delete their own posts");
+        }
+        checkRateLimit(userId, WriteOperation.DELETE_POST);
+        // Timelines only change under their own monitor, see latestPostIds
+        synchronized (repository.getUserPostIds(userId)) {
+            lock.writeLock().lock();
+            try {
+                Post post = repository.getPost(postId);
+                if (post == null) {
+                    return false;
+                }
+                
+                if (!post.getUserId().equals(userId)) {
+                    throw new IllegalArgumentException("User can only delete their own posts");
+                }
+                
+                repository.removePost(postId);
+                
+                // Notify observers asynchronously
+                notifyPostDeletedAsync(postId, userId);
+                
+                return true;
+            } finally {
+                lock.writeLock().unlock();
             }
-            
-            repository.removePost(postId);
-            
-            // Notify observers asynchronously
-            notifyPostDeletedAsync(postId, userId);
-            
-            return true;
-        } finally {
-            lock.writeLock().unlock();
         }
     }
     
@@ -108,10 +176,22 @@ public class SocialMediaNetwork implements FeedSubject {
         } finally {
             lock.readLock().unlock();
         }
+        checkRateLimit(userId, WriteOperation.FOLLOW_USER);
         
-        User user = repository.getUser(userId);
-        if (user != null) {
-            user.follow(followUserId);
+        // SocialGraph is the only follow store, so the edge changes in one atomic step.
+        // The backfill is fixed to the posts that exist at that point; anything uploaded
+        // afterwards already sees the new edge and is delivered live, after the backfill.
+        List<String> timeline = repository.getUserPostIds(followUserId);
+        synchronized (followerLock(userId)) {
+            List<String> backfillIds;
+            synchronized (timeline) {
+                if (!repository.getSocialGraph().follow(userId, followUserId)) {
+                    return;
+                }
+                backfillIds = subscriptions.hasSubscribers(userId)
+                        ? latestPostIds(timeline, userId) : Collections.emptyList();
+            }
+            notifyFollowBackfill(userId, backfillIds);
         }
     }
     
@@ -125,10 +205,27 @@ public class SocialMediaNetwork implements FeedSubject {
         } finally {
             lock.readLock().unlock();
         }
+        checkRateLimit(userId, WriteOperation.UNFOLLOW_USER);
         
-        User user = repository.getUser(userId);
-        if (user != null) {
-            user.unfollow(unfollowUserId);
+        // Purged under the follower's lock, so no live delivery of the author's posts can follow it
+        synchronized (followerLock(userId)) {
+            if (repository.getSocialGraph().unfollow(userId, unfollowUserId)) {
+                subscriptions.publishAuthorUnfollowed(userId, unfollowUserId);
+            }
+        }
+    }
+    
+    // Assign a user to a rate limit tier (RateLimitTier.STANDARD by default)
+    public void setRateLimitTier(String userId, RateLimitTier tier) {
+        requireUser(userId);
+        rateLimiter.setTier(userId, tier);
+    }
+    
+    // Called once the user is known to exist, so unknown ids never get buckets;
+    // still rejects the write before the write lock or any fan-out work
+    private void checkRateLimit(String userId, WriteOperation operation) {
+        if (!rateLimiter.tryAcquire(userId, operation)) {
+            throw new IllegalStateException("Rate limit exceeded for user " + userId + ": " + operation);
         }
     }
     
@@ -145,6 +242,11 @@ public class SocialMediaNetwork implements FeedSubject {
         }
     }
     
+    // Write the user's feed into out using the binary feed codec
+    public void writeFeed(String userId, ByteBuffer out) {
+        FEED_CODECS.get().encodePage(getFeed(userId), out);
+    }
+    
     // Get user's posts
     public List<Post> getUserPosts(String userId) {
         lock.readLock().lock();
@@ -164,6 +266,65 @@ public class SocialMediaNetwork implements FeedSubject {
         }
     }
     
+    // Social graph queries
+    public int getFollowerCount(String userId) {
+        requireUser(userId);
+        return repository.getSocialGraph().getFollowerCount(userId);
+    }
+    
+    public int getFollowingCount(String userId) {
+        requireUser(userId);
+        return repository.getSocialGraph().getFollowingCount(userId);
+    }
+    
+    public List<String> getFollowers(String userId) {
+        requireUser(userId);
+        return repository.getSocialGraph().getFollowers(userId);
+    }
+    
+    public List<String> getMutualFollows(String userId) {
+        requireUser(userId);
+        return repository.getSocialGraph().getMutualFollows(userId);
+    }
+    
+    // "People you may know" - friends of friends ranked by number of shared connections
+    public List<String> getSuggestedUsers(String userId, int limit) {
+        requireUser(userId);
+        return repository.getSocialGraph().suggestFollows(userId, limit);
+    }
+    
+    private void requireUser(String userId) {
+        lock.readLock().lock();
+        try {
+            if (!repository.userExists(userId)) {
+                throw new IllegalArgumentException("User does not exist: " + userId);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Search posts by content - newest first
+    public List<Post> searchPosts(String userId, String query) {
+        return searchPosts(userId, query, false, null, null);
+    }
+    
+    // Search posts by content, optionally restricted to followed users and a time range (inclusive)
+    public List<Post> searchPosts(String userId, String query, boolean followingOnly,
+                                  LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            User user = repository.getUser(userId);
+            if (user == null) {
+                throw new IllegalArgumentException("User does not exist: " + userId);
+            }
+            Collection<String> authorIds = followingOnly ? user.getFollowing() : null;
+            return repository.getSearchIndex().search(query, authorIds, from, to, SEARCH_RESULT_LIMIT);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
     // Get user info
     public User getUser(String userId) {
         lock.readLock().lock();
@@ -177,15 +338,18 @@ public class SocialMediaNetwork implements FeedSubject {
     // Observer Pattern Implementation
     @Override
     public void registerObserver(FeedObserver observer, String userId) {
-        observers.computeIfAbsent(userId, k -> new CopyOnWriteArrayList<>()).add(observer);
+        subscriptions.registerObserver(observer, userId);
     }
     
     @Override
     public void unregisterObserver(FeedObserver observer, String userId) {
-        List<FeedObserver> userObservers = observers.get(userId);
-        if (userObservers != null) {
-            userObservers.remove(observer);
-        }
+        subscriptions.unregisterObserver(observer, userId);
+    }
+    
+    // Subscribe a device to the user's shared feed buffer; close the subscription when the device disconnects
+    public FeedSubscription subscribe(String userId) {
+        requireUser(userId);
+        return subscriptions.subscribe(userId);
     }
     
     @Override
@@ -193,26 +357,33 @@ public class SocialMediaNetwork implements FeedSubject {
         User author = repository.getUser(authorId);
         if (author == null) return;
         
-        // Get all followers of the author
-        Set<String> followers = new HashSet<>();
-        for (User user : repository.getAllUsers().values()) {
-            if (user.isFollowing(authorId)) {
-                followers.add(user.getUserId());
-            }
-        }
-        
-        // Also notify the author themselves
-        followers.add(authorId);
+        Set<String> followers = ConcurrentHashMap.newKeySet();
+        followers.addAll(repository.getSocialGraph().getFollowers(authorId));
+        publishNewPost(post, authorId, followers);
+    }
+    
+    /**
+     * Delivers to the followers captured at upload time that still follow the author.
+     * Each follower is taken out of the pending set under its lock: the re-check keeps a
+     * post from landing after the purge of a concurrent unfollow, and a re-follow in the
+     * meantime leaves the post to this delivery instead of backfilling it as well.
+     */
+    private void publishNewPost(Post post, String authorId, Set<String> pendingFollowers) {
+        // Notify the author themselves
+        subscriptions.publishNewPost(authorId, post);
         
-        // Notify all observers
-        for (String followerId : followers) {
-            List<FeedObserver> userObservers = observers.get(followerId);
-            if (userObservers != null) {
-                for (FeedObserver observer : userObservers) {
-                    observer.onNewPost(post, followerId);
+        for (String followerId : pendingFollowers) {
+            if (followerId.equals(authorId)) {
+                continue;
+            }
+            synchronized (followerLock(followerId)) {
+                if (pendingFollowers.remove(followerId)
+                        && repository.getSocialGraph().isFollowing(followerId, authorId)) {
+                    subscriptions.publishNewPost(followerId, post);
                 }
             }
         }
+        pendingDeliveries.remove(post.getPostId(), pendingFollowers);
     }
     
     @Override
@@ -221,36 +392,69 @@ public class SocialMediaNetwork implements FeedSubject {
         if (author == null) return;
         
         // Get all followers of the author
-        Set<String> followers = new HashSet<>();
-        for (User user : repository.getAllUsers().values()) {
-            if (user.isFollowing(authorId)) {
-                followers.add(user.getUserId());
-            }
-        }
+        Set<String> followers = new HashSet<>(repository.getSocialGraph().getFollowers(authorId));
         
         // Also notify the author themselves
         followers.add(authorId);
         
-        // Notify all observers
+        // Notify subscribers of each follower once
         for (String followerId : followers) {
-            List<FeedObserver> userObservers = observers.get(followerId);
-            if (userObservers != null) {
-                for (FeedObserver observer : userObservers) {
-                    observer.onPostDeleted(postId, followerId);
-                }
+            subscriptions.publishPostDeleted(followerId, postId, authorId);
+        }
+    }
+    
+    // Push the followee's posts captured at follow time to the follower's subscribers, oldest first
+    private void notifyFollowBackfill(String userId, List<String> backfillIds) {
+        List<Post> recentPosts = new ArrayList<>(backfillIds.size());
+        for (String postId : backfillIds) {
+            Post post = repository.getPost(postId); // null if deleted since the follow
+            if (post != null) {
+                recentPosts.add(post);
+            }
+        }
+        if (recentPosts.isEmpty()) {
+            return;
+        }
+        recentPosts.sort(Comparator.comparing(Post::getTimestamp));
+        subscriptions.publishBackfill(userId, recentPosts);
+    }
+    
+    // Newest post ids first, minus posts whose pending fan-out will still reach the follower.
+    // The copy-on-write iterator walks a snapshot, so this costs O(FOLLOW_BACKFILL_LIMIT).
+    // Callers hold the timeline's monitor so its size is stable.
+    private List<String> latestPostIds(List<String> timeline, String followerId) {
+        List<String> postIds = new ArrayList<>(FOLLOW_BACKFILL_LIMIT);
+        ListIterator<String> iterator = timeline.listIterator(timeline.size());
+        while (iterator.hasPrevious() && postIds.size() < FOLLOW_BACKFILL_LIMIT) {
+            String postId = iterator.previous();
+            Set<String> pending = pendingDeliveries.get(postId);
+            if (pending == null || !pending.contains(followerId)) {
+                postIds.add(postId);
             }
         }
+        return postIds;
     }
     
     // Async notification methods
-    private void notifyObserversAsync(Post post, String authorId) {
-        executorService.submit(() -> notifyObservers(post, authorId));
+    private void notifyObserversAsync(Post post, String authorId, Set<String> followers) {
+        executorService.submit(() -> publishNewPost(post, authorId, followers));
     }
     
     private void notifyPostDeletedAsync(String postId, String authorId) {
         executorService.submit(() -> notifyPostDeleted(postId, authorId));
     }
     
+    /**
+     * Follow changes and their feed deltas run on the caller's thread under the follower's
+     * lock stripe, and so does each live delivery to that follower. A follower's feed therefore
+     * always matches the graph: a purge cannot be overtaken by a queued delivery, and a
+     * backfill lands before any newer post. Observers must not call back into follow or
+     * unfollow from their callbacks.
+     */
+    private Object followerLock(String followerId) {
+        return followerLocks[(followerId.hashCode() & 0x7fffffff) % FOLLOWER_LOCK_STRIPES];
+    }
+    
     // Shutdown executor service
     public void shutdown() {
         executorService.shutdown();
@@ -1,7 +1,12 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
 
 /**
  * Repository for data access
@@ -11,16 +16,63 @@ public class SocialMediaRepository {
     private final Map<String, User> users;
     private final Map<String, Post> posts;
     private final Map<String, List<String>> userPosts; // userId -> List of postIds
+    private final PostSearchIndex searchIndex;
+    private final SocialGraph socialGraph;
     
     public SocialMediaRepository() {
-        this.users = new ConcurrentHashMap<>();
-        this.posts = new ConcurrentHashMap<>();
-        this.userPosts = new ConcurrentHashMap<>();
+        this(16, 16);
+    }
+    
+    // Pre-sizes every structure, e.g. before a bulk load
+    public SocialMediaRepository(int expectedUsers, int expectedPosts) {
+        this.users = new ConcurrentHashMap<>(expectedUsers);
+        this.posts = new ConcurrentHashMap<>(expectedPosts);
+        this.userPosts = new ConcurrentHashMap<>(expectedUsers);
+        this.searchIndex = new PostSearchIndex(expectedPosts);
+        this.socialGraph = new SocialGraph(expectedUsers);
+    }
+    
+    /**
+     * Bulk-load an empty repository. users[i] follows followingTargets[followingOffsets[i]..followingOffsets[i + 1])
+     * and authored userPostsArray[postOffsets[i]..postOffsets[i + 1]) in upload order. The user and post maps,
+     * the timelines, the follow graph and the search index are built concurrently.
+     */
+    public void bulkLoad(User[] loadedUsers, int[] followingOffsets, int[] followingTargets,
+                         Post[] userPostsArray, int[] postOffsets) {
+        if (!users.isEmpty()) {
+            throw new IllegalStateException("Bulk load requires an empty repository");
+        }
+        String[] userIds = new String[loadedUsers.length];
+        for (int i = 0; i < loadedUsers.length; i++) {
+            userIds[i] = loadedUsers[i].getUserId();
+        }
+        
+        CompletableFuture<Void> timelines = CompletableFuture.runAsync(() ->
+                IntStream.range(0, loadedUsers.length).parallel().forEach(u -> {
+                    List<String> postIds = new ArrayList<>(postOffsets[u + 1] - postOffsets[u]);
+                    for (int p = postOffsets[u]; p < postOffsets[u + 1]; p++) {
+                        posts.put(userPostsArray[p].getPostId(), userPostsArray[p]);
+                        postIds.add(userPostsArray[p].getPostId());
+                    }
+                    userPosts.put(userIds[u], new CopyOnWriteArrayList<>(postIds));
+                    loadedUsers[u].attach(socialGraph);
+                    users.put(userIds[u], loadedUsers[u]);
+                }));
+        CompletableFuture<Void> graph = CompletableFuture.runAsync(() ->
+                socialGraph.load(userIds, followingOffsets, followingTargets));
+        CompletableFuture<Void> index = CompletableFuture.runAsync(() -> {
+            Post[] byTime = userPostsArray.clone();
+            Arrays.parallelSort(byTime, Comparator.comparing(Post::getTimestamp));
+            searchIndex.addPosts(Arrays.asList(byTime));
+        });
+        CompletableFuture.allOf(timelines, graph, index).join();
     }
     
     public void addUser(User user) {
         users.put(user.getUserId(), user);
         userPosts.putIfAbsent(user.getUserId(), new CopyOnWriteArrayList<>());
+        socialGraph.addUser(user.getUserId());
+        user.attach(socialGraph);
     }
     
     public User getUser(String userId) {
@@ -37,6 +89,7 @@ public class SocialMediaRepository {
         if (postsList != null) {
             postsList.add(post.getPostId());
         }
+        searchIndex.addPost(post);
     }
     
     public Post getPost(String postId) {
@@ -54,6 +107,7 @@ public class SocialMediaRepository {
             if (postsList != null) {
                 postsList.remove(postId);
             }
+            searchIndex.removePost(postId);
         }
     }
     
@@ -61,6 +115,14 @@ public class SocialMediaRepository {
         return userPosts.getOrDefault(userId, new CopyOnWriteArrayList<>());
     }
     
+    public PostSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+    
+    public SocialGraph getSocialGraph() {
+        return socialGraph;
+    }
+    
     public Map<String, User> getAllUsers() {
         return new ConcurrentHashMap<>(users);
     }
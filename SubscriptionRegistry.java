@@ -0,0 +1,107 @@
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes feed events to the subscribers of the target user only.
+ * Device subscriptions share one UserFeedBuffer per user, so an event is stored once
+ * no matter how many devices are connected. Callback observers are still supported
+ * and are kept in concurrent sets, so registering one does not copy a list.
+ */
+public class SubscriptionRegistry {
+    private final Map<String, UserFeedBuffer> buffers;       // userId -> shared buffer (only while subscribed)
+    private final Map<String, Set<FeedObserver>> observers;  // userId -> callback observers
+    private final int bufferCapacity;
+    
+    public SubscriptionRegistry(int bufferCapacity) {
+        this.buffers = new ConcurrentHashMap<>();
+        this.observers = new ConcurrentHashMap<>();
+        this.bufferCapacity = bufferCapacity;
+    }
+    
+    public FeedSubscription subscribe(String userId) {
+        UserFeedBuffer buffer = buffers.compute(userId, (k, existing) -> {
+            UserFeedBuffer b = existing != null ? existing : new UserFeedBuffer(bufferCapacity);
+            b.retain();
+            return b;
+        });
+        return new FeedSubscription(userId, buffer, this);
+    }
+    
+    void unsubscribe(FeedSubscription subscription) {
+        buffers.computeIfPresent(subscription.getUserId(), (k, b) ->
+                b == subscription.getBuffer() && b.release() == 0 ? null : b);
+    }
+    
+    public void registerObserver(FeedObserver observer, String userId) {
+        observers.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(observer);
+    }
+    
+    public void unregisterObserver(FeedObserver observer, String userId) {
+        Set<FeedObserver> userObservers = observers.get(userId);
+        if (userObservers != null) {
+            userObservers.remove(observer);
+        }
+    }
+    
+    public boolean hasSubscribers(String userId) {
+        Set<FeedObserver> userObservers = observers.get(userId);
+        return buffers.containsKey(userId) || (userObservers != null && !userObservers.isEmpty());
+    }
+    
+    public void publishNewPost(String userId, Post post) {
+        UserFeedBuffer buffer = buffers.get(userId);
+        if (buffer != null) {
+            buffer.append(FeedEvent.newPost(post));
+        }
+        Set<FeedObserver> userObservers = observers.get(userId);
+        if (userObservers != null) {
+            for (FeedObserver observer : userObservers) {
+                observer.onNewPost(post, userId);
+            }
+        }
+    }
+    
+    public void publishBackfill(String userId, List<Post> posts) {
+        UserFeedBuffer buffer = buffers.get(userId);
+        if (buffer != null) {
+            for (Post post : posts) {
+                buffer.append(FeedEvent.backfillPost(post));
+            }
+        }
+        Set<FeedObserver> userObservers = observers.get(userId);
+        if (userObservers != null) {
+            for (FeedObserver observer : userObservers) {
+                observer.onBackfill(posts, userId);
+            }
+        }
+    }
+    
+    public void publishAuthorUnfollowed(String userId, String authorId) {
+        UserFeedBuffer buffer = buffers.get(userId);
+        if (buffer != null) {
+            buffer.purgeAuthor(authorId);
+            buffer.append(FeedEvent.authorUnfollowed(authorId));
+        }
+        Set<FeedObserver> userObservers = observers.get(userId);
+        if (userObservers != null) {
+            for (FeedObserver observer : userObservers) {
+                observer.onAuthorUnfollowed(authorId, userId);
+            }
+        }
+    }
+    
+    public void publishPostDeleted(String userId, String postId, String authorId) {
+        UserFeedBuffer buffer = buffers.get(userId);
+        if (buffer != null) {
+            buffer.append(FeedEvent.postDeleted(postId, authorId));
+        }
+        Set<FeedObserver> userObservers = observers.get(userId);
+        if (userObservers != null) {
+            for (FeedObserver observer : userObservers) {
+                observer.onPostDeleted(postId, userId);
+            }
+        }
+    }
+}
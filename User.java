@@ -1,41 +1,59 @@
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class User {
     private final String userId;
     private final String name;
-    private final Set<String> following; // Set of userIds that this user follows (thread-safe)
-    
+    private volatile SocialGraph socialGraph; // Single source of follow state, set when the user is registered
+
     public User(String userId, String name) {
         this.userId = userId;
         this.name = name;
-        this.following = ConcurrentHashMap.newKeySet(); // Thread-safe set
     }
-    
+
     public String getUserId() {
         return userId;
     }
-    
+
     public String getName() {
         return name;
     }
-    
+
+    // Called by the repository that owns this user
+    void attach(SocialGraph socialGraph) {
+        this.socialGraph = socialGraph;
+    }
+
+    // Read-only copy; follow relationships change only through follow/unfollow
     public Set<String> getFollowing() {
-        return following;
+        SocialGraph graph = socialGraph;
+        if (graph == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new LinkedHashSet<>(graph.getFollowing(userId)));
     }
-    
+
     public void follow(String userId) {
         if (!userId.equals(this.userId)) {
-            following.add(userId);
+            requireGraph().follow(this.userId, userId);
         }
     }
-    
+
     public void unfollow(String userId) {
-        following.remove(userId);
+        requireGraph().unfollow(this.userId, userId);
     }
-    
+
     public boolean isFollowing(String userId) {
-        return following.contains(userId);
+        SocialGraph graph = socialGraph;
+        return graph != null && graph.isFollowing(this.userId, userId);
     }
-}
 
+    private SocialGraph requireGraph() {
+        SocialGraph graph = socialGraph;
+        if (graph == null) {
+            throw new IllegalStateException("User is not registered: " + userId);
+        }
+        return graph;
+    }
+}
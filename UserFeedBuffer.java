@@ -0,0 +1,86 @@
+import java.util.List;
+
+/**
+ * Bounded per-user event log shared by all of the user's devices.
+ * Each event is appended once and gets a monotonically increasing offset; devices
+ * read from their own offset. When a slow reader falls more than the capacity
+ * behind, it resumes from the oldest retained event. Purged slots keep their
+ * offset but are skipped by readers.
+ */
+public class UserFeedBuffer {
+    private final FeedEvent[] events;
+    private long nextOffset;
+    private int subscribers;
+    
+    public UserFeedBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.events = new FeedEvent[capacity];
+        this.nextOffset = 0;
+        this.subscribers = 0;
+    }
+    
+    public synchronized long append(FeedEvent event) {
+        long offset = nextOffset;
+        events[(int) (offset % events.length)] = event;
+        nextOffset = offset + 1;
+        notifyAll();
+        return offset;
+    }
+    
+    // Adds up to maxEvents events from fromOffset (or the oldest retained one) to sink; returns the next offset to read
+    public synchronized long read(long fromOffset, int maxEvents, List<FeedEvent> sink) {
+        long offset = Math.max(fromOffset, getOldestOffset());
+        int added = 0;
+        while (offset < nextOffset && added < maxEvents) {
+            FeedEvent event = events[(int) (offset % events.length)];
+            offset++;
+            if (event != null) {
+                sink.add(event);
+                added++;
+            }
+        }
+        return offset;
+    }
+    
+    // Drops retained events from the author so devices that have not read them yet never see them
+    public synchronized void purgeAuthor(String authorId) {
+        for (long offset = getOldestOffset(); offset < nextOffset; offset++) {
+            int slot = (int) (offset % events.length);
+            if (events[slot] != null && authorId.equals(events[slot].getAuthorId())) {
+                events[slot] = null;
+            }
+        }
+    }
+    
+    // Waits until an event at or after fromOffset is available; returns false on timeout
+    public synchronized boolean awaitOffset(long fromOffset, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (nextOffset <= fromOffset) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+    
+    public synchronized long getNextOffset() {
+        return nextOffset;
+    }
+    
+    public synchronized long getOldestOffset() {
+        return Math.max(0, nextOffset - events.length);
+    }
+    
+    // Subscriber counting is only done by SubscriptionRegistry inside ConcurrentHashMap.compute
+    int retain() {
+        return ++subscribers;
+    }
+    
+    int release() {
+        return --subscribers;
+    }
+}
@@ -0,0 +1,9 @@
+/**
+ * Write operations that are rate limited per user
+ */
+public enum WriteOperation {
+    UPLOAD_POST,
+    DELETE_POST,
+    FOLLOW_USER,
+    UNFOLLOW_USER
+}